@@ -0,0 +1,340 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Headless tuning of the camera constants in UDPServerDistance against a recorded detection log.
+ *
+ * The log uses the same CSV layout UDPClient.py sends (xmin,ymin,xmax,ymax,...) plus a "distance"
+ * column with the measured distance to the note. The estimated distance only depends on FOV_X, so
+ * that is all a distance-only log can tune. Optional "x", "y" and "z" columns with the measured
+ * position let the sweep fit FOV_Y, CAMERA_X/Y/Z and CAMERA_ROTATION_DOWN as well.
+ *
+ * Usage: java CalibrationSweep <log.csv> [passes]
+ */
+public class CalibrationSweep {
+    // Search step per parameter, in the order of PARAMETER_NAMES, halved whenever a pass stops improving
+    private static final String[] PARAMETER_NAMES = {
+        "FOV_X", "FOV_Y", "CAMERA_X", "CAMERA_Y", "CAMERA_Z", "CAMERA_ROTATION_DOWN"
+    };
+    // Everything but FOV_X only shows up in the 3D position, so it is left alone without position ground truth
+    private static final boolean[] NEEDS_POSITIONS = {false, true, true, true, true, true};
+    private static final boolean[] IS_ANGLE = {true, true, false, false, false, true};
+    private static final double[] INITIAL_STEPS = {
+        Math.toRadians(2.0), Math.toRadians(2.0), 1.0, 1.0, 1.0, Math.toRadians(2.0)
+    };
+    private static final double[] MIN_STEPS = {
+        Math.toRadians(0.01), Math.toRadians(0.01), 0.01, 0.01, 0.01, Math.toRadians(0.01)
+    };
+    // Candidates evaluated on each side of the current value per coordinate step
+    private static final int GRID_HALF_WIDTH = 4;
+    // Rows below which an error task stops splitting
+    private static final int ROWS_PER_TASK = 256;
+
+    private static class Sample {
+        final double centerX;
+        final double centerY;
+        final double apparentWidth;
+        final double apparentHeight;
+        final double distance;
+        final double[] position; // null when the log has no ground-truth position
+
+        Sample(double xmin, double ymin, double xmax, double ymax, double distance, double[] position) {
+            this.centerX = (xmin + xmax) / 2.0;
+            this.centerY = (ymin + ymax) / 2.0;
+            this.apparentWidth = xmax - xmin;
+            this.apparentHeight = ymax - ymin;
+            this.distance = distance;
+            this.position = position;
+        }
+    }
+
+    // Sums squared errors over a slice of the samples, splitting until the slice is small
+    @SuppressWarnings("serial")
+    private static class ErrorTask extends RecursiveTask<double[]> {
+        private final Sample[] samples;
+        private final UDPServerDistance.CameraParameters camera;
+        private final int from;
+        private final int to;
+
+        ErrorTask(Sample[] samples, UDPServerDistance.CameraParameters camera, int from, int to) {
+            this.samples = samples;
+            this.camera = camera;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                double distanceSquared = 0.0;
+                double positionSquared = 0.0;
+                for (int i = from; i < to; i++) {
+                    double[] errors = sampleErrors(samples[i], camera);
+                    distanceSquared += errors[0] * errors[0];
+                    positionSquared += errors[1] * errors[1];
+                }
+                return new double[]{distanceSquared, positionSquared};
+            }
+
+            int mid = (from + to) >>> 1;
+            ErrorTask left = new ErrorTask(samples, camera, from, mid);
+            left.fork();
+            double[] right = new ErrorTask(samples, camera, mid, to).compute();
+            double[] sum = left.join();
+            sum[0] += right[0];
+            sum[1] += right[1];
+            return sum;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java CalibrationSweep <log.csv> [passes]");
+            return;
+        }
+        int maxPasses = 200;
+        if (args.length > 1) {
+            try {
+                maxPasses = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                System.out.println("Usage: java CalibrationSweep <log.csv> [passes]");
+                return;
+            }
+        }
+
+        Sample[] samples;
+        try {
+            samples = loadSamples(args[0]);
+        } catch (IOException e) {
+            System.out.println("Error reading " + args[0] + ": " + e);
+            return;
+        }
+        if (samples.length == 0) {
+            System.out.println("No usable rows in " + args[0]);
+            return;
+        }
+        boolean hasPositions = samples[0].position != null;
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        long start = System.nanoTime();
+
+        double[] best = toArray(UDPServerDistance.DEFAULT_CAMERA);
+        double bestScore = score(pool, samples, best, hasPositions);
+        double[] steps = INITIAL_STEPS.clone();
+
+        System.out.println("Loaded " + samples.length + " samples, tuning on " + pool.getParallelism() + " threads"
+                + (hasPositions ? "" : " (no x,y,z columns: only FOV_X is tuned)"));
+        printStatistics("Current constants", samples, UDPServerDistance.DEFAULT_CAMERA);
+
+        int pass = 0;
+        while (pass < maxPasses && !belowMinimum(steps)) {
+            boolean improved = false;
+            for (int p = 0; p < PARAMETER_NAMES.length; p++) {
+                if (!hasPositions && NEEDS_POSITIONS[p]) {
+                    continue;
+                }
+
+                // Evaluate a line of candidates through the current best along this coordinate
+                List<double[]> candidates = new ArrayList<>();
+                for (int k = -GRID_HALF_WIDTH; k <= GRID_HALF_WIDTH; k++) {
+                    if (k == 0) {
+                        continue;
+                    }
+                    double[] candidate = best.clone();
+                    candidate[p] += k * steps[p];
+                    if (isPlausible(candidate)) {
+                        candidates.add(candidate);
+                    }
+                }
+
+                List<ErrorTask> tasks = new ArrayList<>();
+                for (double[] candidate : candidates) {
+                    tasks.add(new ErrorTask(samples, fromArray(candidate), 0, samples.length));
+                }
+                for (ErrorTask task : tasks) {
+                    pool.execute(task);
+                }
+                for (int i = 0; i < tasks.size(); i++) {
+                    double candidateScore = combine(tasks.get(i).join(), samples.length, hasPositions);
+                    if (candidateScore < bestScore) {
+                        bestScore = candidateScore;
+                        best = candidates.get(i);
+                        improved = true;
+                    }
+                }
+            }
+
+            if (!improved) {
+                for (int p = 0; p < steps.length; p++) {
+                    steps[p] /= 2.0;
+                }
+            }
+            pass++;
+        }
+
+        pool.shutdown();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        UDPServerDistance.CameraParameters tuned = fromArray(best);
+        System.out.println("\nSearch finished after " + pass + " passes in " + elapsedMillis + " ms");
+        printStatistics("Best fit", samples, tuned);
+
+        System.out.println("\nBest-fit constants for UDPServerDistance:");
+        double[] values = toArray(tuned);
+        for (int p = 0; p < PARAMETER_NAMES.length; p++) {
+            String value = IS_ANGLE[p]
+                ? "Math.toRadians(" + String.format("%.3f", Math.toDegrees(values[p])) + ")"
+                : String.format("%.3f", values[p]);
+            String note = !hasPositions && NEEDS_POSITIONS[p] ? " // not tuned, needs x,y,z columns" : "";
+            System.out.println("private static final double " + PARAMETER_NAMES[p] + " = " + value + ";" + note);
+        }
+    }
+
+    private static Sample[] loadSamples(String path) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            return new Sample[0];
+        }
+
+        List<String> columns = Arrays.asList(lines.get(0).trim().split(","));
+        int xminColumn = requireColumn(columns, "xmin");
+        int yminColumn = requireColumn(columns, "ymin");
+        int xmaxColumn = requireColumn(columns, "xmax");
+        int ymaxColumn = requireColumn(columns, "ymax");
+        int distanceColumn = requireColumn(columns, "distance");
+        int xColumn = columns.indexOf("x");
+        int yColumn = columns.indexOf("y");
+        int zColumn = columns.indexOf("z");
+        boolean hasPositions = xColumn >= 0 && yColumn >= 0 && zColumn >= 0;
+
+        List<Sample> samples = new ArrayList<>();
+        for (int i = 1; i < lines.size(); i++) {
+            String[] values = lines.get(i).trim().split(",");
+            if (values.length != columns.size()) {
+                continue;
+            }
+            try {
+                double[] position = hasPositions ? new double[]{
+                    Double.parseDouble(values[xColumn]),
+                    Double.parseDouble(values[yColumn]),
+                    Double.parseDouble(values[zColumn])
+                } : null;
+                samples.add(new Sample(
+                    Double.parseDouble(values[xminColumn]),
+                    Double.parseDouble(values[yminColumn]),
+                    Double.parseDouble(values[xmaxColumn]),
+                    Double.parseDouble(values[ymaxColumn]),
+                    Double.parseDouble(values[distanceColumn]),
+                    position));
+            } catch (NumberFormatException e) {
+                System.out.println("Skipping row " + i + ": " + e.getMessage());
+            }
+        }
+        return samples.toArray(new Sample[0]);
+    }
+
+    private static int requireColumn(List<String> columns, String name) throws IOException {
+        int index = columns.indexOf(name);
+        if (index < 0) {
+            throw new IOException("missing column '" + name + "'");
+        }
+        return index;
+    }
+
+    // Distance error and position error (0 without ground truth) for one sample
+    private static double[] sampleErrors(Sample sample, UDPServerDistance.CameraParameters camera) {
+        double aspectRatio = sample.apparentWidth / sample.apparentHeight;
+        double[] viewingAngles = UDPServerDistance.calculateViewingAngles(camera, sample.centerX, sample.centerY);
+        UDPServerDistance.TorusEstimate estimate = UDPServerDistance.calculateTorusDistanceAndOrientation(camera,
+            sample.apparentWidth, sample.apparentHeight, aspectRatio, viewingAngles[0], viewingAngles[1]);
+
+        double distanceError = estimate.distance - sample.distance;
+        double positionError = 0.0;
+        if (sample.position != null) {
+            double[] position = UDPServerDistance.calculate3DPosition(camera, sample.centerX, sample.centerY, estimate.distance);
+            double dx = position[0] - sample.position[0];
+            double dy = position[1] - sample.position[1];
+            double dz = position[2] - sample.position[2];
+            positionError = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+        return new double[]{distanceError, positionError};
+    }
+
+    private static double score(ForkJoinPool pool, Sample[] samples, double[] parameters, boolean hasPositions) {
+        double[] sums = pool.invoke(new ErrorTask(samples, fromArray(parameters), 0, samples.length));
+        return combine(sums, samples.length, hasPositions);
+    }
+
+    // RMS distance error, plus RMS position error when the log has positions
+    private static double combine(double[] sums, int count, boolean hasPositions) {
+        double score = Math.sqrt(sums[0] / count);
+        if (hasPositions) {
+            score += Math.sqrt(sums[1] / count);
+        }
+        // Candidates that produce NaN (e.g. a FOV that makes tan blow up) must never win
+        return Double.isNaN(score) ? Double.POSITIVE_INFINITY : score;
+    }
+
+    private static boolean isPlausible(double[] parameters) {
+        return parameters[0] > 0.0 && parameters[0] < Math.PI
+            && parameters[1] > 0.0 && parameters[1] < Math.PI
+            && Math.abs(parameters[5]) < Math.PI / 2.0;
+    }
+
+    private static boolean belowMinimum(double[] steps) {
+        for (int p = 0; p < steps.length; p++) {
+            if (steps[p] >= MIN_STEPS[p]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void printStatistics(String label, Sample[] samples, UDPServerDistance.CameraParameters camera) {
+        double[] distanceErrors = new double[samples.length];
+        double[] positionErrors = new double[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            double[] errors = sampleErrors(samples[i], camera);
+            distanceErrors[i] = Math.abs(errors[0]);
+            positionErrors[i] = errors[1];
+        }
+
+        System.out.println("\n" + label + ":");
+        printErrorLine("Distance error", distanceErrors);
+        if (samples[0].position != null) {
+            printErrorLine("Position error", positionErrors);
+        }
+    }
+
+    private static void printErrorLine(String label, double[] errors) {
+        double[] sorted = errors.clone();
+        Arrays.sort(sorted);
+        double sum = 0.0;
+        double sumSquared = 0.0;
+        for (double error : sorted) {
+            sum += error;
+            sumSquared += error * error;
+        }
+        System.out.println(label + ": mean=" + String.format("%.3f", sum / sorted.length)
+            + " rms=" + String.format("%.3f", Math.sqrt(sumSquared / sorted.length))
+            + " median=" + String.format("%.3f", sorted[sorted.length / 2])
+            + " p95=" + String.format("%.3f", sorted[(int) Math.min(sorted.length - 1, Math.floor(sorted.length * 0.95))])
+            + " max=" + String.format("%.3f", sorted[sorted.length - 1]) + " units");
+    }
+
+    private static double[] toArray(UDPServerDistance.CameraParameters camera) {
+        return new double[]{camera.fovX, camera.fovY, camera.cameraX, camera.cameraY, camera.cameraZ, camera.rotationDown};
+    }
+
+    private static UDPServerDistance.CameraParameters fromArray(double[] parameters) {
+        return new UDPServerDistance.CameraParameters(
+            parameters[0], parameters[1], parameters[2], parameters[3], parameters[4], parameters[5]);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Float-precision approximations of the trig functions used by the UDPServerDistance estimator.
+ *
+ * They are only meant for the angles the camera actually produces (anything within a quarter turn
+ * of straight ahead), where the bounds below hold; FastMathErrorBounds checks them, and the estimator
+ * errors they lead to, on a 4-pixel grid of boxes plus real-valued samples around the sensitive
+ * spots (nearly square boxes, very wide or narrow boxes, centres on the image edges). That is a
+ * sampled check, not a proof over every possible input.
+ *
+ *   sin, cos   |x| <= pi/2      absolute error < 1e-6
+ *   tan        |x| <= 1.4       relative error < 1e-5
+ *   atan       any x            absolute error < 1e-5 rad
+ *   acos       -1 <= x <= 1     absolute error < 1e-6 rad (x taken in double, see acos)
+ */
+final class FastMath {
+    private static final float PI = (float) Math.PI;
+    private static final float HALF_PI = (float) (Math.PI / 2.0);
+    private static final float TWO_PI = (float) (Math.PI * 2.0);
+
+    private FastMath() {}
+
+    static float sin(float x) {
+        // Bring x into [-pi, pi], then fold onto [-pi/2, pi/2] where the series converges quickly
+        if (x > PI || x < -PI) {
+            x -= TWO_PI * Math.round(x / TWO_PI);
+        }
+        if (x > HALF_PI) {
+            x = PI - x;
+        } else if (x < -HALF_PI) {
+            x = -PI - x;
+        }
+        float x2 = x * x;
+        // Taylor series through x^11
+        return x * (1f + x2 * (-1f / 6f + x2 * (1f / 120f + x2 * (-1f / 5040f
+            + x2 * (1f / 362880f + x2 * (-1f / 39916800f))))));
+    }
+
+    static float cos(float x) {
+        if (x > PI || x < -PI) {
+            x -= TWO_PI * Math.round(x / TWO_PI);
+        }
+        return sin(HALF_PI - Math.abs(x));
+    }
+
+    static float tan(float x) {
+        return sin(x) / cos(x);
+    }
+
+    static float atan(float x) {
+        // Abramowitz & Stegun 4.4.49 on [-1, 1], atan(x) = pi/2 - atan(1/x) outside it
+        boolean invert = Math.abs(x) > 1f;
+        float t = invert ? 1f / x : x;
+        float t2 = t * t;
+        float result = t * (0.9999993329f + t2 * (-0.3332985605f + t2 * (0.1994653599f
+            + t2 * (-0.1390853351f + t2 * (0.0964200441f + t2 * (-0.0559098861f
+            + t2 * (0.0218612288f + t2 * -0.0040540580f)))))));
+        if (invert) {
+            result = (t > 0f ? HALF_PI : -HALF_PI) - result;
+        }
+        return result;
+    }
+
+    static float acos(double x) {
+        // Abramowitz & Stegun 4.4.46 on [0, 1], acos(x) = pi - acos(-x) below it. The sqrt(1 - x)
+        // factor amplifies any rounding of x near 1, so that part stays in double; the polynomial
+        // is smooth there and is fine in float.
+        double abs = Math.min(1.0, Math.abs(x));
+        float a = (float) abs;
+        float result = (float) Math.sqrt(1.0 - abs) * (1.5707963050f + a * (-0.2145988016f
+            + a * (0.0889789874f + a * (-0.0501743046f + a * (0.0308918810f
+            + a * (-0.0170881256f + a * (0.0066700901f + a * -0.0012624911f)))))));
+        return x < 0.0 ? PI - result : result;
+    }
+}
@@ -0,0 +1,184 @@
+import java.util.Random;
+
+/*
+ * Checks the FastMath error contract, first per function across its stated range and then for the
+ * UDPServerDistance estimator, comparing -Dfastmath=true against the exact Math path on a pixel grid
+ * of boxes plus real-valued boxes concentrated where the trig is most sensitive. It samples the
+ * input domain rather than covering it. Run it after touching FastMath or the estimator; it exits
+ * with status 1 if any bound is exceeded.
+ *
+ * Usage: java FastMathErrorBounds
+ */
+public class FastMathErrorBounds {
+    // Per-function bounds, see the table in FastMath
+    private static final double SIN_COS_TOLERANCE = 1e-6;
+    private static final double TAN_RELATIVE_TOLERANCE = 1e-5;
+    private static final double ATAN_TOLERANCE = 1e-5;
+    private static final double ACOS_TOLERANCE = 1e-6;
+
+    // Estimator bounds against the exact path
+    private static final double ANGLE_TOLERANCE = 1e-5; // radians
+    private static final double DISTANCE_RELATIVE_TOLERANCE = 1e-5;
+    private static final double CONFIDENCE_TOLERANCE = 1e-4;
+
+    private static final int IMAGE_WIDTH = 640;
+    private static final int IMAGE_HEIGHT = 480;
+    private static final int FUNCTION_SAMPLES = 2_000_000;
+    // Pixel spacing of box centres and sizes in the estimator sweep
+    private static final int PIXEL_STEP = 4;
+    // Real-valued boxes per sampling pattern in the estimator sweep
+    private static final int RANDOM_SAMPLES = 1_000_000;
+
+    private static boolean failed = false;
+
+    // Largest estimator errors seen so far, fast path against exact
+    private static double angleError = 0.0;
+    private static double orientationError = 0.0;
+    private static double distanceError = 0.0;
+    private static double positionError = 0.0;
+    private static double confidenceError = 0.0;
+    private static long boxes = 0;
+
+    public static void main(String[] args) {
+        checkFunctions();
+        checkEstimator();
+
+        if (failed) {
+            System.out.println("\nFast-math error bounds exceeded");
+            System.exit(1);
+        }
+        System.out.println("\nAll fast-math error bounds hold");
+    }
+
+    private static void checkFunctions() {
+        double sinError = 0.0;
+        double cosError = 0.0;
+        double tanError = 0.0;
+        double acosError = 0.0;
+        double atanError = 0.0;
+
+        for (int i = 0; i <= FUNCTION_SAMPLES; i++) {
+            double fraction = (double) i / FUNCTION_SAMPLES;
+
+            float angle = (float) ((fraction * 2.0 - 1.0) * Math.PI / 2.0);
+            sinError = Math.max(sinError, Math.abs(FastMath.sin(angle) - Math.sin(angle)));
+            cosError = Math.max(cosError, Math.abs(FastMath.cos(angle) - Math.cos(angle)));
+
+            float tanArgument = (float) ((fraction * 2.0 - 1.0) * 1.4);
+            double exactTan = Math.tan(tanArgument);
+            if (exactTan != 0.0) {
+                tanError = Math.max(tanError, Math.abs((FastMath.tan(tanArgument) - exactTan) / exactTan));
+            }
+
+            double cosine = fraction * 2.0 - 1.0;
+            acosError = Math.max(acosError, Math.abs(FastMath.acos(cosine) - Math.acos(cosine)));
+            // acos is steepest next to +-1, so also walk in towards both ends logarithmically
+            double nearOne = 1.0 - Math.pow(10.0, -1.0 - fraction * 15.0);
+            acosError = Math.max(acosError, Math.abs(FastMath.acos(nearOne) - Math.acos(nearOne)));
+            acosError = Math.max(acosError, Math.abs(FastMath.acos(-nearOne) - Math.acos(-nearOne)));
+
+            // atan over [-1000, 1000] with most samples near zero, where the camera's inputs live
+            float slope = (float) (Math.signum(fraction - 0.5) * Math.pow(Math.abs(fraction * 2.0 - 1.0), 3) * 1000.0);
+            atanError = Math.max(atanError, Math.abs(FastMath.atan(slope) - Math.atan(slope)));
+        }
+
+        report("sin", sinError, SIN_COS_TOLERANCE);
+        report("cos", cosError, SIN_COS_TOLERANCE);
+        report("tan (relative)", tanError, TAN_RELATIVE_TOLERANCE);
+        report("atan", atanError, ATAN_TOLERANCE);
+        report("acos", acosError, ACOS_TOLERANCE);
+    }
+
+    private static void checkEstimator() {
+        // Every box on the PIXEL_STEP grid that fits inside the image
+        for (int centerX = 0; centerX <= IMAGE_WIDTH; centerX += PIXEL_STEP) {
+            for (int centerY = 0; centerY <= IMAGE_HEIGHT; centerY += PIXEL_STEP) {
+                int maxWidth = 2 * Math.min(centerX, IMAGE_WIDTH - centerX);
+                int maxHeight = 2 * Math.min(centerY, IMAGE_HEIGHT - centerY);
+                for (int width = PIXEL_STEP; width <= maxWidth; width += PIXEL_STEP) {
+                    for (int height = PIXEL_STEP; height <= maxHeight; height += PIXEL_STEP) {
+                        compareBox(centerX, centerY, width, height);
+                    }
+                }
+            }
+        }
+
+        // The detector reports real-valued boxes, so also sample off the grid, concentrating on where
+        // the trig is most sensitive: nearly square boxes (acos near 1), boxes nearly as wide as the
+        // image or barely a pixel wide (the ends of tan's range) and centres on the image edges
+        Random random = new Random(5806);
+        for (int i = 0; i < RANDOM_SAMPLES; i++) {
+            double height = 1.0 + random.nextDouble() * (IMAGE_HEIGHT - 1.0);
+            double skew = Math.pow(10.0, -1.0 - random.nextDouble() * 11.0);
+            double width = height * (random.nextBoolean() ? 1.0 - skew : 1.0 + skew);
+            compareBox(randomCenter(random, IMAGE_WIDTH), randomCenter(random, IMAGE_HEIGHT), width, height);
+
+            double wide = IMAGE_WIDTH * (1.0 - Math.pow(10.0, -random.nextDouble() * 8.0));
+            double narrow = Math.pow(10.0, -2.0 + random.nextDouble() * 2.0);
+            compareBox(randomCenter(random, IMAGE_WIDTH), randomCenter(random, IMAGE_HEIGHT), wide, 1.0 + random.nextDouble() * (IMAGE_HEIGHT - 1.0));
+            compareBox(randomCenter(random, IMAGE_WIDTH), randomCenter(random, IMAGE_HEIGHT), narrow, narrow * (0.5 + random.nextDouble()));
+
+            compareBox(random.nextDouble() * 1e-3, IMAGE_HEIGHT - random.nextDouble() * 1e-3, 1.0 + random.nextDouble() * 100.0, 1.0 + random.nextDouble() * 100.0);
+            compareBox(random.nextDouble() * IMAGE_WIDTH, random.nextDouble() * IMAGE_HEIGHT,
+                1.0 + random.nextDouble() * (IMAGE_WIDTH - 1.0), 1.0 + random.nextDouble() * (IMAGE_HEIGHT - 1.0));
+        }
+        UDPServerDistance.fastMath = Boolean.getBoolean("fastmath");
+
+        System.out.println("\nEstimator over " + boxes + " boxes:");
+        report("viewing angles", angleError, ANGLE_TOLERANCE);
+        report("orientation", orientationError, ANGLE_TOLERANCE);
+        report("distance (relative)", distanceError, DISTANCE_RELATIVE_TOLERANCE);
+        report("3D position (relative to distance)", positionError, DISTANCE_RELATIVE_TOLERANCE);
+        report("confidence", confidenceError, CONFIDENCE_TOLERANCE);
+    }
+
+    // Mostly anywhere in the image, sometimes within a thousandth of a pixel of either edge
+    private static double randomCenter(Random random, int size) {
+        double edge = random.nextDouble() * 1e-3;
+        switch (random.nextInt(4)) {
+            case 0:
+                return edge;
+            case 1:
+                return size - edge;
+            default:
+                return random.nextDouble() * size;
+        }
+    }
+
+    private static void compareBox(double centerX, double centerY, double width, double height) {
+        UDPServerDistance.CameraParameters camera = UDPServerDistance.DEFAULT_CAMERA;
+        double aspectRatio = width / height;
+
+        UDPServerDistance.fastMath = false;
+        double[] exactAngles = UDPServerDistance.calculateViewingAngles(camera, centerX, centerY);
+        UDPServerDistance.TorusEstimate exact = UDPServerDistance.calculateTorusDistanceAndOrientation(
+            camera, width, height, aspectRatio, exactAngles[0], exactAngles[1]);
+        double[] exactPosition = UDPServerDistance.calculate3DPosition(camera, centerX, centerY, exact.distance);
+
+        UDPServerDistance.fastMath = true;
+        double[] fastAngles = UDPServerDistance.calculateViewingAngles(camera, centerX, centerY);
+        UDPServerDistance.TorusEstimate fast = UDPServerDistance.calculateTorusDistanceAndOrientation(
+            camera, width, height, aspectRatio, fastAngles[0], fastAngles[1]);
+        double[] fastPosition = UDPServerDistance.calculate3DPosition(camera, centerX, centerY, fast.distance);
+
+        angleError = Math.max(angleError, Math.abs(fastAngles[0] - exactAngles[0]));
+        angleError = Math.max(angleError, Math.abs(fastAngles[1] - exactAngles[1]));
+        orientationError = Math.max(orientationError, Math.abs(fast.orientation - exact.orientation));
+        distanceError = Math.max(distanceError, Math.abs(fast.distance - exact.distance) / exact.distance);
+        confidenceError = Math.max(confidenceError, Math.abs(fast.confidence - exact.confidence));
+        double dx = fastPosition[0] - exactPosition[0];
+        double dy = fastPosition[1] - exactPosition[1];
+        double dz = fastPosition[2] - exactPosition[2];
+        positionError = Math.max(positionError, Math.sqrt(dx * dx + dy * dy + dz * dz) / exact.distance);
+        boxes++;
+    }
+
+    private static void report(String name, double maxError, double tolerance) {
+        boolean ok = maxError < tolerance;
+        if (!ok) {
+            failed = true;
+        }
+        System.out.println((ok ? "ok   " : "FAIL ") + name + ": max error " + String.format("%.3e", maxError)
+            + " (bound " + String.format("%.0e", tolerance) + ")");
+    }
+}
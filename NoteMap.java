@@ -0,0 +1,255 @@
+import java.util.Arrays;
+
+/*
+ * Field-relative map of notes built up from the positions UDPServerDistance calculates.
+ *
+ * The field is a fixed grid of cells held in primitive arrays. Each cell keeps the blended field
+ * position and confidence of at most one note and the time it was last seen; confidence decays
+ * exponentially and is only evaluated when a cell is touched, so nothing has to sweep the grid.
+ *
+ * A detection within mergeRadius of a stored note (UDPServerDistance uses the note's diameter) is
+ * blended into it. The search covers as many neighbouring cells as that radius spans, so cells
+ * smaller than a note make the search wider instead of splitting one note in two.
+ *
+ * Occupied cells are also kept in a compact list of at most MAX_NOTES entries, which is what the
+ * queries walk. Once the list is full a new note evicts the least confident one (or is dropped if it
+ * is weaker still), so queries cost O(MAX_NOTES), a fixed bound independent of how noisy the
+ * detections are, and never look at raw detections.
+ *
+ * Positions from calculate3DPosition are robot-relative: X to the right, Z forward, Y is ignored.
+ * Field coordinates use the same units with X along the field length, Y along its width and the
+ * robot heading in radians counter-clockwise from the field X axis.
+ */
+final class NoteMap {
+    // Notes whose decayed confidence falls below this are dropped from the map
+    private static final double MIN_CONFIDENCE = 0.05;
+    // Hard cap on notes held at once; a real field has far fewer, the rest is noise
+    static final int MAX_NOTES = 64;
+
+    private final double fieldLength;
+    private final double fieldWidth;
+    private final double cellSize;
+    private final double mergeRadius;
+    private final int mergeReach; // cells searched either side of a detection's own cell
+    private final double decayNanos;
+    private final int columns;
+    private final int rows;
+
+    // Per cell, indexed row * columns + column
+    private final double[] noteX;
+    private final double[] noteY;
+    private final double[] confidence;
+    private final long[] lastSeen;
+    private final int[] occupiedSlot; // position in occupied, or -1
+
+    private final int[] occupied;
+    private int occupiedCount = 0;
+
+    NoteMap(double fieldLength, double fieldWidth, double cellSize, double mergeRadius, double decaySeconds) {
+        this.fieldLength = fieldLength;
+        this.fieldWidth = fieldWidth;
+        this.cellSize = cellSize;
+        this.mergeRadius = mergeRadius;
+        this.mergeReach = (int) Math.ceil(mergeRadius / cellSize);
+        this.decayNanos = decaySeconds * 1e9;
+        this.columns = (int) Math.ceil(fieldLength / cellSize);
+        this.rows = (int) Math.ceil(fieldWidth / cellSize);
+
+        int cells = columns * rows;
+        this.noteX = new double[cells];
+        this.noteY = new double[cells];
+        this.confidence = new double[cells];
+        this.lastSeen = new long[cells];
+        this.occupiedSlot = new int[cells];
+        this.occupied = new int[MAX_NOTES];
+        Arrays.fill(occupiedSlot, -1);
+    }
+
+    synchronized void addDetection(double[] robotRelativePosition, double detectionConfidence,
+            double robotX, double robotY, double robotHeading, long nowNanos) {
+        // Robot frame (X right, Z forward) to field frame
+        double forward = robotRelativePosition[2];
+        double left = -robotRelativePosition[0];
+        double cos = Math.cos(robotHeading);
+        double sin = Math.sin(robotHeading);
+        double x = robotX + forward * cos - left * sin;
+        double y = robotY + forward * sin + left * cos;
+        // Written so NaN fails too: a degenerate box gives an infinite distance and a NaN position
+        if (!(x >= 0.0 && x < fieldLength && y >= 0.0 && y < fieldWidth)) {
+            return;
+        }
+        double weight = detectionConfidence >= 0.0 ? Math.min(1.0, detectionConfidence) : 0.0;
+
+        // The same note may already be stored in a nearby cell, so merge into the closest note
+        // within mergeRadius before starting a new one
+        int column = (int) (x / cellSize);
+        int row = (int) (y / cellSize);
+        int target = -1;
+        double targetDistanceSquared = mergeRadius * mergeRadius;
+        for (int r = Math.max(0, row - mergeReach); r <= Math.min(rows - 1, row + mergeReach); r++) {
+            for (int c = Math.max(0, column - mergeReach); c <= Math.min(columns - 1, column + mergeReach); c++) {
+                int cell = r * columns + c;
+                if (currentConfidence(cell, nowNanos) <= 0.0) {
+                    continue;
+                }
+                double dx = noteX[cell] - x;
+                double dy = noteY[cell] - y;
+                double distanceSquared = dx * dx + dy * dy;
+                if (distanceSquared < targetDistanceSquared) {
+                    target = cell;
+                    targetDistanceSquared = distanceSquared;
+                }
+            }
+        }
+
+        // One note per cell, so a far note in this detection's own cell still gets merged
+        int cell = row * columns + column;
+        if (target < 0 && currentConfidence(cell, nowNanos) > 0.0) {
+            target = cell;
+        }
+
+        if (target < 0) {
+            if (occupiedCount == MAX_NOTES && !evictWeakest(weight, nowNanos)) {
+                return;
+            }
+            target = cell;
+            noteX[target] = x;
+            noteY[target] = y;
+            confidence[target] = weight;
+            lastSeen[target] = nowNanos;
+            markOccupied(target);
+            return;
+        }
+
+        // Blend position by confidence and combine confidences as independent observations
+        double previous = currentConfidence(target, nowNanos);
+        double total = previous + weight;
+        if (total > 0.0) {
+            noteX[target] = (noteX[target] * previous + x * weight) / total;
+            noteY[target] = (noteY[target] * previous + y * weight) / total;
+        }
+        confidence[target] = 1.0 - (1.0 - previous) * (1.0 - weight);
+        lastSeen[target] = nowNanos;
+    }
+
+    // Closest note to (x, y) as {x, y, confidence}, or null when the map is empty
+    synchronized double[] nearest(double x, double y, long nowNanos) {
+        int best = -1;
+        double bestDistanceSquared = Double.POSITIVE_INFINITY;
+        for (int i = occupiedCount - 1; i >= 0; i--) {
+            int cell = occupied[i];
+            if (currentConfidence(cell, nowNanos) <= 0.0) {
+                continue;
+            }
+            double dx = noteX[cell] - x;
+            double dy = noteY[cell] - y;
+            double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared < bestDistanceSquared) {
+                best = cell;
+                bestDistanceSquared = distanceSquared;
+            }
+        }
+        return best < 0 ? null : new double[]{noteX[best], noteY[best], currentConfidence(best, nowNanos)};
+    }
+
+    // Up to k most confident notes inside the rectangle as {x, y, confidence}, most confident first.
+    // The map never holds more than MAX_NOTES, so larger k is clamped rather than allocated.
+    synchronized double[][] best(int k, double minX, double minY, double maxX, double maxY, long nowNanos) {
+        k = Math.max(0, Math.min(k, MAX_NOTES));
+        int[] cells = new int[k];
+        double[] scores = new double[k];
+        int found = 0;
+        for (int i = occupiedCount - 1; i >= 0; i--) {
+            int cell = occupied[i];
+            double score = currentConfidence(cell, nowNanos);
+            if (score <= 0.0 || noteX[cell] < minX || noteX[cell] > maxX || noteY[cell] < minY || noteY[cell] > maxY) {
+                continue;
+            }
+
+            // Insertion into the small sorted top-k arrays
+            int position = found < k ? found++ : k;
+            while (position > 0 && scores[position - 1] < score) {
+                if (position < k) {
+                    cells[position] = cells[position - 1];
+                    scores[position] = scores[position - 1];
+                }
+                position--;
+            }
+            if (position < k) {
+                cells[position] = cell;
+                scores[position] = score;
+            }
+        }
+
+        double[][] notes = new double[found][];
+        for (int i = 0; i < found; i++) {
+            notes[i] = new double[]{noteX[cells[i]], noteY[cells[i]], scores[i]};
+        }
+        return notes;
+    }
+
+    synchronized int size() {
+        return occupiedCount;
+    }
+
+    synchronized void clear() {
+        for (int i = 0; i < occupiedCount; i++) {
+            int cell = occupied[i];
+            confidence[cell] = 0.0;
+            occupiedSlot[cell] = -1;
+        }
+        occupiedCount = 0;
+    }
+
+    // Decayed confidence of a cell, dropping the note from the map once it falls below MIN_CONFIDENCE
+    private double currentConfidence(int cell, long nowNanos) {
+        if (occupiedSlot[cell] < 0) {
+            return 0.0;
+        }
+        double decayed = confidence[cell] * Math.exp(-Math.max(0L, nowNanos - lastSeen[cell]) / decayNanos);
+        if (decayed < MIN_CONFIDENCE) {
+            removeOccupied(cell);
+            return 0.0;
+        }
+        return decayed;
+    }
+
+    private void markOccupied(int cell) {
+        if (occupiedSlot[cell] < 0) {
+            occupiedSlot[cell] = occupiedCount;
+            occupied[occupiedCount++] = cell;
+        }
+    }
+
+    // Makes room for a new note of the given confidence, unless every stored note is more confident
+    private boolean evictWeakest(double weight, long nowNanos) {
+        int weakest = -1;
+        double weakestConfidence = Double.POSITIVE_INFINITY;
+        for (int i = occupiedCount - 1; i >= 0; i--) {
+            int cell = occupied[i];
+            double score = currentConfidence(cell, nowNanos);
+            if (score > 0.0 && score < weakestConfidence) {
+                weakest = cell;
+                weakestConfidence = score;
+            }
+        }
+        if (occupiedCount < MAX_NOTES) {
+            return true; // something decayed out while scanning
+        }
+        if (weakestConfidence >= weight) {
+            return false;
+        }
+        removeOccupied(weakest);
+        return true;
+    }
+
+    // Swap-remove, so the occupied list stays compact
+    private void removeOccupied(int cell) {
+        int slot = occupiedSlot[cell];
+        int last = occupied[--occupiedCount];
+        occupied[slot] = last;
+        occupiedSlot[last] = slot;
+        occupiedSlot[cell] = -1;
+        confidence[cell] = 0.0;
+    }
+}
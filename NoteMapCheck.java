@@ -0,0 +1,184 @@
+/*
+ * Checks NoteMap's bookkeeping: merging nearby detections, ignoring NaN and infinite ones, notes
+ * decaying out of the map while a query is walking it (the swap-remove path), best(k) ordering with k
+ * above and below the number of notes, out-of-range k and non-finite poses in UDPServerDistance's
+ * request handler, and the MAX_NOTES cap. Run it after touching NoteMap; it exits with status 1 on
+ * any failure.
+ *
+ * Usage: java NoteMapCheck
+ */
+public class NoteMapCheck {
+    private static final double FIELD_LENGTH = 651.25;
+    private static final double FIELD_WIDTH = 323.25;
+    private static final double CELL_SIZE = 6.0;
+    private static final double MERGE_RADIUS = 12.0; // the note diameter, as in UDPServerDistance
+    private static final double DECAY_SECONDS = 2.0;
+    private static final long SECOND = 1_000_000_000L;
+    private static final double TOLERANCE = 1e-9;
+
+    private static boolean failed = false;
+
+    public static void main(String[] args) {
+        checkMerge();
+        checkTransform();
+        checkDecayDuringQueries();
+        checkBestOrdering();
+        checkCap();
+
+        if (failed) {
+            System.out.println("\nNote map checks failed");
+            System.exit(1);
+        }
+        System.out.println("\nAll note map checks pass");
+    }
+
+    private static void checkMerge() {
+        NoteMap map = newMap();
+        add(map, 100.0, 100.0, 0.5, 0);
+        add(map, 102.0, 100.0, 0.5, 0);
+        check("nearby detections merge", map.size() == 1);
+        double[] note = map.nearest(0.0, 0.0, 0);
+        check("merged position is confidence-weighted", Math.abs(note[0] - 101.0) < TOLERANCE && Math.abs(note[1] - 100.0) < TOLERANCE);
+        check("merged confidence combines observations", Math.abs(note[2] - 0.75) < TOLERANCE);
+
+        // Straddling a cell edge still merges into the neighbouring cell's note
+        add(map, 119.9, 50.0, 0.5, 0);
+        add(map, 120.1, 50.0, 0.5, 0);
+        check("detections across a cell edge merge", map.size() == 2);
+
+        // 11 apart is inside one note diameter but two cells over
+        add(map, 200.0, 50.0, 0.5, 0);
+        add(map, 211.0, 50.0, 0.5, 0);
+        check("detections within the merge radius merge across cells", map.size() == 3);
+        add(map, 230.0, 50.0, 0.5, 0);
+        check("detections beyond the merge radius stay separate", map.size() == 4);
+
+        add(map, 300.0, 200.0, 0.5, 0);
+        check("distant detection starts a new note", map.size() == 5);
+
+        add(map, -5.0, 100.0, 0.9, 0);
+        check("off-field detection is ignored", map.size() == 5);
+
+        // A zero-width box gives an infinite distance, which turns into NaN or infinite positions
+        add(map, Double.NaN, 100.0, 0.9, 0);
+        add(map, 100.0, Double.POSITIVE_INFINITY, 0.9, 0);
+        map.addDetection(new double[]{Double.NaN, 0.0, Double.POSITIVE_INFINITY}, 0.9, 100.0, 100.0, 0.0, 0);
+        check("NaN and infinite detections are ignored", map.size() == 5);
+        add(map, 500.0, 100.0, Double.NaN, 0);
+        double[] unweighted = map.nearest(500.0, 100.0, 0);
+        check("NaN confidence does not poison the map", unweighted == null || !Double.isNaN(unweighted[2]));
+        check("non-finite pose is rejected by the request handler",
+            UDPServerDistance.handleMapRequest("pose,NaN,100,0").startsWith("error,")
+                && UDPServerDistance.handleMapRequest("pose,100,100,Infinity").startsWith("error,"));
+
+        map.clear();
+        check("clear empties the map", map.size() == 0 && map.nearest(0.0, 0.0, 0) == null);
+    }
+
+    private static void checkTransform() {
+        NoteMap map = newMap();
+        // Robot at (300, 100) facing +Y sees a note 50 ahead and 10 to its right
+        map.addDetection(new double[]{10.0, 0.0, 50.0}, 0.9, 300.0, 100.0, Math.PI / 2.0, 0);
+        double[] note = map.nearest(300.0, 100.0, 0);
+        check("robot-relative position is rotated into the field frame",
+            note != null && Math.abs(note[0] - 310.0) < 1e-6 && Math.abs(note[1] - 150.0) < 1e-6);
+    }
+
+    private static void checkDecayDuringQueries() {
+        NoteMap map = newMap();
+        // Weak notes at the start, middle and end of the occupied list, and closest to the query point,
+        // so they are removed while nearest() is iterating
+        add(map, 20.0, 20.0, 0.1, 0);
+        add(map, 200.0, 200.0, 0.9, 0);
+        add(map, 50.0, 20.0, 0.2, 0);
+        add(map, 400.0, 100.0, 0.3, 0);
+        add(map, 10.0, 50.0, 0.1, 0);
+        check("five notes before decay", map.size() == 5);
+
+        // After 3 s with a 2 s time constant: 0.9 -> 0.20, 0.3 -> 0.067, 0.2 and 0.1 fall below 0.05
+        long later = 3 * SECOND;
+        double[] nearest = map.nearest(0.0, 0.0, later);
+        check("nearest skips decayed notes", nearest != null && Math.abs(nearest[0] - 200.0) < TOLERANCE);
+        check("decayed notes are dropped during the scan", map.size() == 2);
+        check("decayed confidence", Math.abs(nearest[2] - 0.9 * Math.exp(-1.5)) < TOLERANCE);
+
+        double[][] best = map.best(10, 0.0, 0.0, FIELD_LENGTH, FIELD_WIDTH, later);
+        check("best sees only surviving notes", best.length == 2 && best[0][0] == 200.0 && best[1][0] == 400.0);
+
+        check("everything decays eventually", map.nearest(0.0, 0.0, 20 * SECOND) == null && map.size() == 0);
+    }
+
+    private static void checkBestOrdering() {
+        NoteMap map = newMap();
+        double[] confidences = {0.4, 0.9, 0.6, 0.2, 0.8, 0.5};
+        for (int i = 0; i < confidences.length; i++) {
+            add(map, 50.0 + 40.0 * i, 100.0, confidences[i], 0);
+        }
+
+        double[][] top = map.best(3, 0.0, 0.0, FIELD_LENGTH, FIELD_WIDTH, 0);
+        check("best(k < notes) returns k", top.length == 3);
+        check("best(k < notes) is ordered", top.length == 3 && top[0][2] == 0.9 && top[1][2] == 0.8 && top[2][2] == 0.6);
+
+        double[][] all = map.best(10, 0.0, 0.0, FIELD_LENGTH, FIELD_WIDTH, 0);
+        boolean ordered = all.length == confidences.length;
+        for (int i = 1; ordered && i < all.length; i++) {
+            ordered = all[i - 1][2] >= all[i][2];
+        }
+        check("best(k > notes) returns every note in order", ordered);
+
+        check("best(0) is empty", map.best(0, 0.0, 0.0, FIELD_LENGTH, FIELD_WIDTH, 0).length == 0);
+        check("best(negative k) is empty", map.best(-1, 0.0, 0.0, FIELD_LENGTH, FIELD_WIDTH, 0).length == 0);
+        check("best(huge k) is clamped, not allocated",
+            map.best(2_000_000_000, 0.0, 0.0, FIELD_LENGTH, FIELD_WIDTH, 0).length == confidences.length);
+        check("negative k is rejected by the request handler",
+            UDPServerDistance.handleMapRequest("best,7,-1,0,0,651.25,323.25").startsWith("error,"));
+        check("huge k is answered by the request handler",
+            UDPServerDistance.handleMapRequest("best,8,2000000000,0,0,651.25,323.25").startsWith("8"));
+
+        // Notes at x = 90, 130 and 170 fall inside
+        double[][] region = map.best(5, 80.0, 0.0, 180.0, FIELD_WIDTH, 0);
+        check("best filters by region", region.length == 3 && region[0][2] == 0.9 && region[1][2] == 0.6 && region[2][2] == 0.2);
+    }
+
+    private static void checkCap() {
+        NoteMap map = newMap();
+        int notes = NoteMap.MAX_NOTES + 10;
+        for (int i = 0; i < notes; i++) {
+            // Increasing confidence, so each note past the cap evicts the weakest one
+            add(map, 10.0 + 15.0 * (i % 40), 10.0 + 15.0 * (i / 40), 0.1 + 0.8 * i / notes, 0);
+        }
+        check("map never holds more than MAX_NOTES", map.size() == NoteMap.MAX_NOTES);
+        double[][] all = map.best(notes, 0.0, 0.0, FIELD_LENGTH, FIELD_WIDTH, 0);
+        check("the weakest notes were evicted", all.length == NoteMap.MAX_NOTES
+            && Math.abs(all[all.length - 1][2] - (0.1 + 0.8 * 10 / notes)) < TOLERANCE);
+
+        add(map, 600.0, 300.0, 0.05, 0);
+        double[] corner = map.nearest(600.0, 300.0, 0);
+        check("a note weaker than all stored ones is dropped when full",
+            map.size() == NoteMap.MAX_NOTES && (corner[0] != 600.0 || corner[1] != 300.0));
+
+        // A full map of weak notes that have since decayed frees up room instead of evicting
+        NoteMap stale = newMap();
+        for (int i = 0; i < NoteMap.MAX_NOTES; i++) {
+            add(stale, 10.0 + 15.0 * (i % 40), 10.0 + 15.0 * (i / 40), 0.1, 0);
+        }
+        add(stale, 600.0, 300.0, 0.5, 3 * SECOND);
+        check("decayed notes make room when full", stale.size() == 1 && stale.nearest(0.0, 0.0, 3 * SECOND)[0] == 600.0);
+    }
+
+    private static NoteMap newMap() {
+        return new NoteMap(FIELD_LENGTH, FIELD_WIDTH, CELL_SIZE, MERGE_RADIUS, DECAY_SECONDS);
+    }
+
+    // Adds a detection at a field position, seen from a robot at the origin facing +X
+    private static void add(NoteMap map, double x, double y, double confidence, long nowNanos) {
+        map.addDetection(new double[]{-y, 0.0, x}, confidence, 0.0, 0.0, 0.0, nowNanos);
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failed = true;
+        }
+        System.out.println((ok ? "ok   " : "FAIL ") + name);
+    }
+}
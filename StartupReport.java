@@ -0,0 +1,52 @@
+import java.lang.management.ManagementFactory;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Cold-start timings printed by the standalone servers: how long after JVM start the socket is bound
+ * (what launch.sh's CDS archive and the warm-up are meant to shrink) and how long the first packet
+ * took to process once it arrived. Time spent waiting for the first packet is deliberately left out.
+ */
+final class StartupReport {
+    private StartupReport() {}
+
+    static void socketBound(int port) {
+        System.out.println("Port " + port + " bound " + sinceJvmStart());
+    }
+
+    static void firstPacketProcessed(long processingNanos) {
+        System.out.println("First packet processed in " + millis(processingNanos) + " ms");
+    }
+
+    /*
+     * What the servers load between the end of warm-up and the first packet: a loopback round trip on
+     * a socket bound to an ephemeral port and the report itself. Called from the --warmup-only run so
+     * launch.sh's CDS archive covers it without binding the real ports.
+     */
+    static void warmUp() {
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            socket.setSoTimeout(1000);
+            byte[] data = "warm-up".getBytes(StandardCharsets.UTF_8);
+            socket.send(new DatagramPacket(data, data.length, InetAddress.getLoopbackAddress(), socket.getLocalPort()));
+            DatagramPacket packet = new DatagramPacket(new byte[data.length], data.length);
+            socket.receive(packet);
+            new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            System.out.println("Socket warm-up failed: " + e);
+        }
+        sinceJvmStart();
+        millis(0L);
+    }
+
+    // The JVM's own uptime, which starts at VM creation with millisecond resolution; the OS process
+    // start time only has whole-second resolution on Linux
+    private static String sinceJvmStart() {
+        return ManagementFactory.getRuntimeMXBean().getUptime() + " ms after JVM start";
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+}
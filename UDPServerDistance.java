@@ -17,19 +17,72 @@ public class UDPServerDistance {
     private static final double TORUS_MAJOR_RADIUS = 5.0;
     private static final double TORUS_MINOR_RADIUS = 1.0;
 
+    static final CameraParameters DEFAULT_CAMERA = new CameraParameters(
+        FOV_X, FOV_Y, CAMERA_X, CAMERA_Y, CAMERA_Z, CAMERA_ROTATION_DOWN);
+
+    // Float approximations from FastMath instead of Math for per-detection trig, enable with -Dfastmath=true
+    static boolean fastMath = Boolean.getBoolean("fastmath");
+
+    // 2024 field in the same units as the camera constants, and how the note map buckets and forgets notes
+    private static final double FIELD_LENGTH = 651.25;
+    private static final double FIELD_WIDTH = 323.25;
+    private static final double NOTE_MAP_CELL_SIZE = 6.0;
+    // Detections closer than one note diameter are taken to be the same note
+    private static final double NOTE_MERGE_RADIUS = 2.0 * (TORUS_MAJOR_RADIUS + TORUS_MINOR_RADIUS);
+    private static final double NOTE_DECAY_SECONDS = 2.0;
+
+    static final NoteMap NOTE_MAP = new NoteMap(FIELD_LENGTH, FIELD_WIDTH, NOTE_MAP_CELL_SIZE, NOTE_MERGE_RADIUS, NOTE_DECAY_SECONDS);
+
+    // Port the robot program sends its pose to and queries the note map on, see handleMapRequest
+    private static final int MAP_PORT = 5807;
+
+    // Robot pose on the field as {x, y, heading}, replaced as a whole so readers never see a torn pose.
+    // Until the robot program sends a pose the robot is taken to sit mid-wall facing downfield.
+    private static volatile double[] robotPose = {0.0, FIELD_WIDTH / 2.0, 0.0};
+
+    // Start-up warm-up, overridable with -Dwarmup.iterations=N
+    private static final int WARMUP_ITERATIONS = Integer.getInteger("warmup.iterations", 20000);
+
     public static void main(String[] args) {
+        boolean warmupOnly = args.length > 0 && args[0].equals("--warmup-only");
         int port = 5806;
         byte[] buffer = new byte[65507];
 
+        // Run the parse and estimate paths before binding so the first real frame doesn't pay for
+        // class loading and JIT compilation. launch.sh uses --warmup-only to record the CDS archive.
+        long warmupStart = System.nanoTime();
+        warmUp(WARMUP_ITERATIONS);
+        NOTE_MAP.clear();
+        long warmupMillis = (System.nanoTime() - warmupStart) / 1_000_000;
+        System.out.println("Warm-up finished in " + warmupMillis + " ms (" + WARMUP_ITERATIONS + " packets)");
+        // Created before the --warmup-only exit so its lambda class makes it into the archive too
+        Runnable mapServer = UDPServerDistance::serveMapRequests;
+        if (warmupOnly) {
+            StartupReport.warmUp();
+            return;
+        }
+
+        Thread mapThread = new Thread(mapServer, "note-map");
+        mapThread.setDaemon(true);
+        mapThread.start();
+
         try (DatagramSocket socket = new DatagramSocket(port)) {
             System.out.println("UDP server listening on port " + port);
+            StartupReport.socketBound(port);
 
+            boolean firstFrame = true;
             while (true) {
                 DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
                 socket.receive(packet);
 
+                long receivedAt = System.nanoTime();
                 String received = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
-                processDetections(received);
+                processDetections(received, true);
+
+                if (firstFrame) {
+                    firstFrame = false;
+                    StartupReport.firstPacketProcessed(System.nanoTime() - receivedAt);
+                }
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -37,10 +90,118 @@ public class UDPServerDistance {
         }
     }
 
-    private static void processDetections(String detectionData) {
+    private static void warmUp(int iterations) {
+        // Synthetic packets in the same format UDPClient.py sends, spread across the image
+        String header = "xmin,ymin,xmax,ymax,confidence,class,name\n";
+        String[] packets = new String[16];
+        for (int i = 0; i < packets.length; i++) {
+            double xmin = 20.0 + i * 35.0;
+            double ymin = 40.0 + i * 22.0;
+            double width = 30.0 + (i % 5) * 12.0;
+            double height = 12.0 + (i % 7) * 6.0;
+            packets[i] = header + xmin + "," + ymin + "," + (xmin + width) + "," + (ymin + height) + ",0.9,0,note\n"
+                    + (xmin + 5.0) + "," + (ymin + 3.0) + "," + (xmin + width * 0.5) + "," + (ymin + height * 0.5) + ",0.6,0,note";
+        }
+
+        for (int i = 0; i < iterations; i++) {
+            processDetections(packets[i % packets.length], false);
+            if (i % 16 == 0) {
+                handleMapRequest("nearest,1,0,161.625");
+                handleMapRequest("best,2,3,0,0,651.25,323.25");
+            }
+        }
+    }
+
+    private static void serveMapRequests() {
+        byte[] buffer = new byte[1024];
+
+        try (DatagramSocket socket = new DatagramSocket(MAP_PORT)) {
+            System.out.println("Note map listening on port " + MAP_PORT);
+
+            while (true) {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+
+                // One bad request or failed reply must not take the map server down with it
+                try {
+                    String request = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+                    String reply = handleMapRequest(request);
+                    if (reply != null) {
+                        byte[] data = reply.getBytes(StandardCharsets.UTF_8);
+                        socket.send(new DatagramPacket(data, data.length, packet.getSocketAddress()));
+                    }
+                } catch (Exception e) {
+                    System.out.println("Note map request failed: " + e);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Note map error: " + e);
+        }
+    }
+
+    /*
+     * Requests from the robot program, comma-separated like the detection packets:
+     *   pose,x,y,heading                      updates the robot pose, no reply unless it is rejected
+     *   nearest,id,x,y                        replies "id" then the closest note as "x,y,confidence"
+     *   best,id,k,minX,minY,maxX,maxY         replies "id" then up to k notes (at most MAX_NOTES), most confident first
+     * The id is echoed so the client can discard replies to queries it already gave up on.
+     */
+    static String handleMapRequest(String request) {
+        try {
+            String[] values = request.trim().split(",");
+            long now = System.nanoTime();
+            switch (values[0]) {
+                case "pose": {
+                    double x = Double.parseDouble(values[1]);
+                    double y = Double.parseDouble(values[2]);
+                    double heading = Double.parseDouble(values[3]);
+                    if (!Double.isFinite(x) || !Double.isFinite(y) || !Double.isFinite(heading)) {
+                        return "error,non-finite pose " + x + "," + y + "," + heading;
+                    }
+                    setRobotPose(x, y, heading);
+                    return null;
+                }
+                case "nearest": {
+                    StringBuilder reply = new StringBuilder(values[1]);
+                    double[] note = NOTE_MAP.nearest(Double.parseDouble(values[2]), Double.parseDouble(values[3]), now);
+                    if (note != null) {
+                        reply.append('\n').append(note[0]).append(',').append(note[1]).append(',').append(note[2]);
+                    }
+                    return reply.toString();
+                }
+                case "best": {
+                    int k = Integer.parseInt(values[2]);
+                    if (k < 0) {
+                        return "error,negative k " + k;
+                    }
+                    StringBuilder reply = new StringBuilder(values[1]);
+                    double[][] notes = NOTE_MAP.best(k,
+                        Double.parseDouble(values[3]), Double.parseDouble(values[4]),
+                        Double.parseDouble(values[5]), Double.parseDouble(values[6]), now);
+                    for (double[] note : notes) {
+                        reply.append('\n').append(note[0]).append(',').append(note[1]).append(',').append(note[2]);
+                    }
+                    return reply.toString();
+                }
+                default:
+                    return "error,unknown request " + values[0];
+            }
+        } catch (RuntimeException e) {
+            return "error," + e;
+        }
+    }
+
+    private static void setRobotPose(double x, double y, double heading) {
+        robotPose = new double[]{x, y, heading};
+    }
+
+    private static void processDetections(String detectionData, boolean verbose) {
         try {
             String[] rows = detectionData.split("\n");
             String[] columns = rows[0].split(",");
+            double[] pose = robotPose;
+            long now = System.nanoTime();
 
             for (int i = 1; i < rows.length; i++) {
                 String[] values = rows[i].split(",");
@@ -49,6 +210,7 @@ public class UDPServerDistance {
                     double ymin = Double.parseDouble(values[1]);
                     double xmax = Double.parseDouble(values[2]);
                     double ymax = Double.parseDouble(values[3]);
+                    double detectionConfidence = values.length > 4 ? Double.parseDouble(values[4]) : 1.0;
                     
                     double apparentWidth = xmax - xmin;
                     double apparentHeight = ymax - ymin;
@@ -59,17 +221,22 @@ public class UDPServerDistance {
                     double centerY = (ymin + ymax) / 2.0;
                     
                     // Calculate viewing angle
-                    double[] viewingAngles = calculateViewingAngles(centerX, centerY);
+                    double[] viewingAngles = calculateViewingAngles(DEFAULT_CAMERA, centerX, centerY);
                     double viewingAngle = viewingAngles[0]; // horizontal angle
                     double verticalAngle = viewingAngles[1]; // vertical angle
                     
                     // Calculate distance considering viewing angle
-                    TorusEstimate estimate = calculateTorusDistanceAndOrientation(
+                    TorusEstimate estimate = calculateTorusDistanceAndOrientation(DEFAULT_CAMERA,
                         apparentWidth, apparentHeight, aspectRatio, viewingAngle, verticalAngle);
                     
                     // Calculate 3D position using corrected distance
-                    double[] position = calculate3DPosition(centerX, centerY, estimate.distance);
-                    
+                    double[] position = calculate3DPosition(DEFAULT_CAMERA, centerX, centerY, estimate.distance);
+                    NOTE_MAP.addDetection(position, detectionConfidence, pose[0], pose[1], pose[2], now);
+
+                    if (!verbose) {
+                        continue;
+                    }
+
                     System.out.println("\nTorus Detection Analysis:");
                     System.out.println("Apparent Width: " + apparentWidth + " pixels");
                     System.out.println("Apparent Height: " + apparentHeight + " pixels");
@@ -84,12 +251,51 @@ public class UDPServerDistance {
                                      ", Z=" + String.format("%.2f", position[2]));
                 }
             }
+
+            if (verbose) {
+                double[] nearest = NOTE_MAP.nearest(pose[0], pose[1], now);
+                if (nearest != null) {
+                    System.out.println("\nNearest mapped note: X=" + String.format("%.2f", nearest[0]) +
+                                     ", Y=" + String.format("%.2f", nearest[1]) +
+                                     " (confidence " + String.format("%.2f", nearest[2]) + ", " + NOTE_MAP.size() + " notes on map)");
+                }
+            }
         } catch (Exception e) {
             System.out.println("Error processing detection: " + e.getMessage());
         }
     }
 
-    private static class TorusEstimate {
+    // Camera constants as a value, so the calibration sweep can evaluate candidates without editing code
+    static class CameraParameters {
+        final double fovX;
+        final double fovY;
+        final double cameraX;
+        final double cameraY;
+        final double cameraZ;
+        final double rotationDown;
+
+        // Trig of the constants above, so it isn't recomputed for every detection
+        final double tanHalfFovX;
+        final double tanHalfFovY;
+        final double cosRotation;
+        final double sinRotation;
+
+        CameraParameters(double fovX, double fovY, double cameraX, double cameraY, double cameraZ,
+                double rotationDown) {
+            this.fovX = fovX;
+            this.fovY = fovY;
+            this.cameraX = cameraX;
+            this.cameraY = cameraY;
+            this.cameraZ = cameraZ;
+            this.rotationDown = rotationDown;
+            this.tanHalfFovX = Math.tan(fovX / 2.0);
+            this.tanHalfFovY = Math.tan(fovY / 2.0);
+            this.cosRotation = Math.cos(rotationDown);
+            this.sinRotation = Math.sin(rotationDown);
+        }
+    }
+
+    static class TorusEstimate {
         double distance;
         double orientation;
         double confidence;
@@ -101,22 +307,22 @@ public class UDPServerDistance {
         }
     }
 
-    private static double[] calculateViewingAngles(double centerX, double centerY) {
+    static double[] calculateViewingAngles(CameraParameters camera, double centerX, double centerY) {
         // Convert to normalized coordinates (-1 to 1)
         double normX = (centerX / IMAGE_WIDTH) * 2 - 1;
         double normY = (centerY / IMAGE_HEIGHT) * 2 - 1;
         
         // Calculate horizontal angle
-        double horizontalAngle = Math.atan(normX * Math.tan(FOV_X / 2.0));
+        double horizontalAngle = atan(normX * camera.tanHalfFovX);
         
         // Calculate vertical angle including camera rotation
-        double baseVerticalAngle = Math.atan(normY * Math.tan(FOV_Y / 2.0));
-        double verticalAngle = baseVerticalAngle + CAMERA_ROTATION_DOWN;
+        double baseVerticalAngle = atan(normY * camera.tanHalfFovY);
+        double verticalAngle = baseVerticalAngle + camera.rotationDown;
         
         return new double[]{horizontalAngle, verticalAngle};
     }
 
-    private static TorusEstimate calculateTorusDistanceAndOrientation(
+    static TorusEstimate calculateTorusDistanceAndOrientation(CameraParameters camera,
             double apparentWidth, double apparentHeight, double aspectRatio,
             double viewingAngle, double verticalAngle) {
         
@@ -129,24 +335,26 @@ public class UDPServerDistance {
         normalizedRatio = Math.max(0.0, Math.min(1.0, normalizedRatio));
         
         // Estimate orientation angle from aspect ratio
-        double orientationAngle = Math.acos(normalizedRatio);
+        double orientationAngle = acos(normalizedRatio);
+        double cosOrientation = cos(orientationAngle);
+        double sinOrientation = sin(orientationAngle);
         
         // Calculate apparent size considering orientation
-        double effectiveDiameter = 2 * TORUS_MAJOR_RADIUS * Math.cos(orientationAngle) +
-                                 2 * TORUS_MINOR_RADIUS * Math.sin(orientationAngle);
+        double effectiveDiameter = 2 * TORUS_MAJOR_RADIUS * cosOrientation +
+                                 2 * TORUS_MINOR_RADIUS * sinOrientation;
         
         // Calculate base distance using apparent width
-        double widthAngle = (apparentWidth / IMAGE_WIDTH) * FOV_X;
-        double baseDistance = effectiveDiameter / (2 * Math.tan(widthAngle / 2));
+        double widthAngle = (apparentWidth / IMAGE_WIDTH) * camera.fovX;
+        double baseDistance = effectiveDiameter / (2 * tan(widthAngle / 2));
         
         // Correct distance for viewing angle
-        double correctedDistance = baseDistance / Math.cos(viewingAngle);
+        double correctedDistance = baseDistance / cos(viewingAngle);
         
         // Calculate confidence based on how well the measurements match expected values
-        double expectedHeight = 2 * (TORUS_MAJOR_RADIUS + TORUS_MINOR_RADIUS) * Math.sin(orientationAngle) +
-                              2 * TORUS_MINOR_RADIUS * Math.cos(orientationAngle);
-        double heightAngle = (apparentHeight / IMAGE_HEIGHT) * FOV_Y;
-        double heightBasedDistance = expectedHeight / (2 * Math.tan(heightAngle / 2));
+        double expectedHeight = 2 * (TORUS_MAJOR_RADIUS + TORUS_MINOR_RADIUS) * sinOrientation +
+                              2 * TORUS_MINOR_RADIUS * cosOrientation;
+        double heightAngle = (apparentHeight / IMAGE_HEIGHT) * camera.fovY;
+        double heightBasedDistance = expectedHeight / (2 * tan(heightAngle / 2));
         
         // Compare the two distance estimates for confidence
         double confidence = 1.0 - Math.min(1.0, 
@@ -155,19 +363,19 @@ public class UDPServerDistance {
         return new TorusEstimate(correctedDistance, orientationAngle, confidence);
     }
 
-    private static double[] calculate3DPosition(double centerX, double centerY, double distance) {
+    static double[] calculate3DPosition(CameraParameters camera, double centerX, double centerY, double distance) {
         // Normalize coordinates
         double normCenterX = (centerX / IMAGE_WIDTH) * 2 - 1;
         double normCenterY = (centerY / IMAGE_HEIGHT) * 2 - 1;
 
         // Calculate direction vector
-        double directionX = Math.tan(normCenterX * FOV_X / 2.0);
-        double directionY = Math.tan(normCenterY * FOV_Y / 2.0);
+        double directionX = tan(normCenterX * camera.fovX / 2.0);
+        double directionY = tan(normCenterY * camera.fovY / 2.0);
         double directionZ = 1.0;
 
         // Apply camera rotation
-        double cosTheta = Math.cos(CAMERA_ROTATION_DOWN);
-        double sinTheta = Math.sin(CAMERA_ROTATION_DOWN);
+        double cosTheta = camera.cosRotation;
+        double sinTheta = camera.sinRotation;
         double rotatedDirectionY = cosTheta * directionY - sinTheta * directionZ;
         double rotatedDirectionZ = sinTheta * directionY + cosTheta * directionZ;
 
@@ -178,10 +386,30 @@ public class UDPServerDistance {
         
         // Calculate position
         double[] position = new double[3];
-        position[0] = CAMERA_X + (directionX / magnitude) * distance;
-        position[1] = CAMERA_Y + (rotatedDirectionY / magnitude) * distance;
-        position[2] = CAMERA_Z + (rotatedDirectionZ / magnitude) * distance;
+        position[0] = camera.cameraX + (directionX / magnitude) * distance;
+        position[1] = camera.cameraY + (rotatedDirectionY / magnitude) * distance;
+        position[2] = camera.cameraZ + (rotatedDirectionZ / magnitude) * distance;
 
         return position;
     }
+
+    private static double sin(double x) {
+        return fastMath ? FastMath.sin((float) x) : Math.sin(x);
+    }
+
+    private static double cos(double x) {
+        return fastMath ? FastMath.cos((float) x) : Math.cos(x);
+    }
+
+    private static double tan(double x) {
+        return fastMath ? FastMath.tan((float) x) : Math.tan(x);
+    }
+
+    private static double atan(double x) {
+        return fastMath ? FastMath.atan((float) x) : Math.atan(x);
+    }
+
+    private static double acos(double x) {
+        return fastMath ? FastMath.acos(x) : Math.acos(x);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+#!/bin/bash
+# Packages the standalone UDP servers into a jar and runs them with an AppCDS archive,
+# so a restart after a brownout gets to the first processed frame as quickly as possible.
+
+help() {
+  echo "This script builds and launches the standalone vision server."
+  echo
+  echo "Syntax: ./launch.sh [-h|r|b|f] [distance|rotation]"
+  echo "  options:"
+  echo "  -h        Display this help message."
+  echo "  -r        Rebuild the jar and the class-data-sharing archive."
+  echo "  -b        Build only, do not launch the server."
+  echo "  -f        Use the float trig approximations in the distance estimator (see FastMath.java)."
+  echo
+}
+
+REBUILD="false"
+BUILD_ONLY="false"
+FAST_MATH="false"
+
+while getopts ":hrbf" name; do
+  case "$name" in
+    h)
+      help
+      exit 0
+      ;;
+    r) REBUILD="true"
+      ;;
+    b) BUILD_ONLY="true"
+      ;;
+    f) FAST_MATH="true"
+      ;;
+    \?)
+      echo "Error: Invalid option -- '$OPTARG'"
+      echo "Try './launch.sh -h' for more information."
+      exit 1
+  esac
+done
+
+shift $(($OPTIND -1))
+
+SERVER=${1:-distance}
+if [ "$SERVER" = "distance" ]; then
+  MAIN_CLASS="UDPServerDistance"
+elif [ "$SERVER" = "rotation" ]; then
+  MAIN_CLASS="UDPServerRotationOnly"
+else
+  echo "Unknown server '$SERVER', expected 'distance' or 'rotation'."
+  exit 1
+fi
+
+SCRIPT_DIR=$(cd "$(dirname "$0")" && pwd)
+BUILD_DIR="$SCRIPT_DIR/build"
+JAR="$BUILD_DIR/note-detection-server.jar"
+ARCHIVE="$BUILD_DIR/$MAIN_CLASS.jsa"
+
+# Keep the JVM small and predictable on the coprocessor; the same flags must be used
+# when the archive is dumped and when it is mapped, otherwise the archive is rejected.
+# C2 stays enabled: the server is long-running, and start-up is covered by the archive and warm-up.
+JVM_FLAGS="-XX:+UseSerialGC -Xss512k -Dfastmath=$FAST_MATH"
+
+if [ "$REBUILD" = "true" ]; then
+  rm -rf "$BUILD_DIR"
+fi
+
+if [ ! -f "$JAR" ]; then
+  echo "Compiling servers..."
+  mkdir -p "$BUILD_DIR/classes"
+  javac --release 17 -encoding UTF-8 -d "$BUILD_DIR/classes" "$SCRIPT_DIR"/UDPServer*.java "$SCRIPT_DIR"/FastMath.java "$SCRIPT_DIR"/NoteMap.java "$SCRIPT_DIR"/StartupReport.java || exit 1
+  jar --create --file "$JAR" -C "$BUILD_DIR/classes" . || exit 1
+  echo "Compiled servers."
+fi
+
+if [ ! -f "$ARCHIVE" ]; then
+  # The training run warms up on synthetic packets, does a loopback socket round trip and
+  # exits without binding the real ports. That archives the parse, estimate, note map and
+  # socket classes; anything first loaded by the live receive loop is still loaded at start-up.
+  echo "Creating class-data-sharing archive for $MAIN_CLASS..."
+  java $JVM_FLAGS -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$JAR" $MAIN_CLASS --warmup-only || exit 1
+  echo "Created class-data-sharing archive."
+fi
+
+if [ "$BUILD_ONLY" = "true" ]; then
+  exit 0
+fi
+
+exec java $JVM_FLAGS -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto -cp "$JAR" $MAIN_CLASS
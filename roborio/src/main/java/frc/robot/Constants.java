@@ -16,4 +16,12 @@ public final class Constants {
   public static class OperatorConstants {
     public static final int kDriverControllerPort = 0;
   }
+
+  public static class VisionConstants {
+    // UDPServerDistance runs next to the robot program and serves its note map on this port
+    public static final String kNoteMapHost = "localhost";
+    public static final int kNoteMapPort = 5807;
+    // Keep queries well inside the 20 ms loop
+    public static final int kNoteMapTimeoutMs = 5;
+  }
 }
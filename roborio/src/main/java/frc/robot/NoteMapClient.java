@@ -0,0 +1,116 @@
+package frc.robot;
+
+import frc.robot.Constants.VisionConstants;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Talks to the field note map kept by UDPServerDistance. Send the robot pose every loop so new
+ * detections are placed on the field correctly, and query the map from autonomous commands to pick
+ * a target without looking at raw detections. All positions are field-relative {x, y, confidence}
+ * in the units of the camera constants; headings are radians counter-clockwise from the field X axis.
+ */
+public class NoteMapClient implements AutoCloseable {
+  private final DatagramSocket m_socket;
+  private final InetAddress m_address;
+  private final byte[] m_buffer = new byte[4096];
+  private int m_nextRequestId = 0;
+
+  /**
+   * Creates a client for the note map on the host and port in {@link VisionConstants}.
+   *
+   * @throws IOException if the socket cannot be opened or the host cannot be resolved
+   */
+  public NoteMapClient() throws IOException {
+    m_address = InetAddress.getByName(VisionConstants.kNoteMapHost);
+    m_socket = new DatagramSocket();
+    m_socket.setSoTimeout(VisionConstants.kNoteMapTimeoutMs);
+  }
+
+  /**
+   * Reports the robot pose used to place new detections on the field.
+   *
+   * @param x field X of the robot
+   * @param y field Y of the robot
+   * @param heading robot heading in radians
+   */
+  public void sendPose(double x, double y, double heading) {
+    send("pose," + x + "," + y + "," + heading);
+  }
+
+  /**
+   * Finds the mapped note closest to a point.
+   *
+   * @param x field X to measure from, usually the robot's
+   * @param y field Y to measure from
+   * @return the note as {x, y, confidence}, or null if the map is empty or did not answer in time
+   */
+  public double[] nearest(double x, double y) {
+    double[][] notes = query("nearest", x + "," + y);
+    return notes.length > 0 ? notes[0] : null;
+  }
+
+  /**
+   * Finds the most confident mapped notes inside a rectangle of the field.
+   *
+   * @param k the maximum number of notes to return
+   * @return up to k notes as {x, y, confidence}, most confident first; empty if none or no answer
+   */
+  public double[][] best(int k, double minX, double minY, double maxX, double maxY) {
+    return query("best", k + "," + minX + "," + minY + "," + maxX + "," + maxY);
+  }
+
+  @Override
+  public void close() {
+    m_socket.close();
+  }
+
+  private double[][] query(String type, String arguments) {
+    String id = Integer.toString(m_nextRequestId++);
+    if (!send(type + "," + id + "," + arguments)) {
+      return new double[0][];
+    }
+
+    try {
+      while (true) {
+        DatagramPacket packet = new DatagramPacket(m_buffer, m_buffer.length);
+        m_socket.receive(packet);
+        String[] lines = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8).split("\n");
+        // Skip late replies to queries that already timed out
+        if (!lines[0].equals(id)) {
+          continue;
+        }
+
+        double[][] notes = new double[lines.length - 1][];
+        for (int i = 1; i < lines.length; i++) {
+          String[] values = lines[i].split(",");
+          notes[i - 1] =
+              new double[] {
+                Double.parseDouble(values[0]), Double.parseDouble(values[1]), Double.parseDouble(values[2])
+              };
+        }
+        return notes;
+      }
+    } catch (SocketTimeoutException e) {
+      return new double[0][];
+    } catch (IOException | RuntimeException e) {
+      System.out.println("Note map query failed: " + e);
+      return new double[0][];
+    }
+  }
+
+  private boolean send(String request) {
+    byte[] data = request.getBytes(StandardCharsets.UTF_8);
+    try {
+      m_socket.send(new DatagramPacket(data, data.length, m_address, VisionConstants.kNoteMapPort));
+      return true;
+    } catch (IOException e) {
+      System.out.println("Note map request failed: " + e);
+      return false;
+    }
+  }
+}